@@ -0,0 +1,217 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Michael Mauderer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Storage for the values of a single column of a {@link DataTable}.
+ * <p> Columns that only contain a few distinct values (e.g., the device values of a grid based target)
+ * are stored as a dictionary of the distinct values and a compact code per row. All other columns keep
+ * one reference per row.
+ */
+abstract class DataColumn<DataType> {
+
+    /**
+     * Largest number of distinct values that can be addressed by the dictionary codes.
+     */
+    static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    private static final int MAX_BYTE_DICTIONARY_SIZE = 1 << 8;
+
+    /**
+     * Minimum average number of occurrences per distinct value for a column to be dictionary encoded.
+     */
+    static final int MIN_REPETITIONS = 8;
+
+    /**
+     * Creates a column holding the given values, choosing the encoding based on their cardinality.
+     */
+    static <DataType> DataColumn<DataType> encode(DataType[] values) {
+        // The dictionary and its lookup map cost a multiple of a plain reference per distinct value, so
+        // the encoding only pays off if each value is repeated several times.
+        int maxDictionarySize = Math.min(values.length / MIN_REPETITIONS, MAX_DICTIONARY_SIZE);
+        if (maxDictionarySize == 0) {
+            return new PlainColumn<>(values);
+        }
+        HashMap<DataType, Integer> codes = new HashMap<>();
+        for (DataType value : values) {
+            if (!codes.containsKey(value)) {
+                if (codes.size() == maxDictionarySize) {
+                    return new PlainColumn<>(values);
+                }
+                codes.put(value, codes.size());
+            }
+        }
+        return new DictionaryColumn<>(values, codes);
+    }
+
+    abstract DataType get(int row);
+
+    abstract int size();
+
+    /**
+     * Appends a value to the end of the column.
+     *
+     * @return the column containing the appended value. This is either this column or a column with a
+     * different encoding if the value could not be stored in the current one.
+     */
+    abstract DataColumn<DataType> append(DataType value);
+
+    abstract boolean isDictionaryEncoded();
+
+    static final class PlainColumn<DataType> extends DataColumn<DataType> {
+
+        private final ArrayList<DataType> values;
+
+        PlainColumn(DataType[] values) {
+            this.values = new ArrayList<>(Arrays.asList(values));
+        }
+
+        @Override
+        DataType get(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        int size() {
+            return values.size();
+        }
+
+        @Override
+        DataColumn<DataType> append(DataType value) {
+            values.add(value);
+            return this;
+        }
+
+        @Override
+        boolean isDictionaryEncoded() {
+            return false;
+        }
+    }
+
+    static final class DictionaryColumn<DataType> extends DataColumn<DataType> {
+
+        private final ArrayList<DataType> dictionary;
+        private final HashMap<DataType, Integer> codes;
+        // Exactly one of these holds the codes, depending on the size of the dictionary.
+        private byte[] byteCodes;
+        private short[] shortCodes;
+        private int size;
+
+        DictionaryColumn(DataType[] values, HashMap<DataType, Integer> codes) {
+            this.codes = codes;
+            this.dictionary = new ArrayList<>(codes.size());
+            for (int i = 0; i < codes.size(); ++i) {
+                dictionary.add(null);
+            }
+            for (DataType value : codes.keySet()) {
+                dictionary.set(codes.get(value), value);
+            }
+
+            if (dictionary.size() <= MAX_BYTE_DICTIONARY_SIZE) {
+                byteCodes = new byte[values.length];
+            } else {
+                shortCodes = new short[values.length];
+            }
+            for (DataType value : values) {
+                appendCode(codes.get(value));
+            }
+        }
+
+        @Override
+        DataType get(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("Row index: " + row + ", Size: " + size);
+            }
+            return dictionary.get(getCode(row));
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        DataColumn<DataType> append(DataType value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                // Stop encoding once values are no longer repeated often enough, as in encode().
+                int dictionarySize = dictionary.size() + 1;
+                if (dictionarySize > MAX_DICTIONARY_SIZE || dictionarySize * MIN_REPETITIONS > size + 1) {
+                    return toPlainColumn().append(value);
+                }
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            appendCode(code);
+            return this;
+        }
+
+        @Override
+        boolean isDictionaryEncoded() {
+            return true;
+        }
+
+        int getCode(int row) {
+            if (byteCodes != null) {
+                return byteCodes[row] & 0xFF;
+            }
+            return shortCodes[row] & 0xFFFF;
+        }
+
+        private void appendCode(int code) {
+            if (byteCodes != null && code >= MAX_BYTE_DICTIONARY_SIZE) {
+                shortCodes = new short[Math.max(byteCodes.length, 1)];
+                for (int i = 0; i < size; ++i) {
+                    shortCodes[i] = (short) (byteCodes[i] & 0xFF);
+                }
+                byteCodes = null;
+            }
+            if (byteCodes != null) {
+                if (size == byteCodes.length) {
+                    byteCodes = Arrays.copyOf(byteCodes, Math.max(2 * size, 1));
+                }
+                byteCodes[size] = (byte) code;
+            } else {
+                if (size == shortCodes.length) {
+                    shortCodes = Arrays.copyOf(shortCodes, Math.max(2 * size, 1));
+                }
+                shortCodes[size] = (short) code;
+            }
+            ++size;
+        }
+
+        @SuppressWarnings("unchecked")
+        private PlainColumn<DataType> toPlainColumn() {
+            Object[] values = new Object[size];
+            for (int i = 0; i < size; ++i) {
+                values[i] = get(i);
+            }
+            return new PlainColumn<>((DataType[]) values);
+        }
+    }
+}
@@ -31,18 +31,26 @@ class DataTable<DataType> {
 
     final ArrayList<String> rowLabels;
     final ArrayList<String> columnLabels;
-    private DataType[][] data;
+    private final ArrayList<DataColumn<DataType>> columns;
 
+    @SuppressWarnings("unchecked")
     public DataTable(String[] rowLabels, String[] columnLabels, DataType[][] data) {
 
-        this.data = data;
         this.rowLabels = new ArrayList<>(Arrays.asList(rowLabels));
         this.columnLabels = new ArrayList<>(Arrays.asList(columnLabels));
 
-        assert (rowLabels.length > 0);
         assert (columnLabels.length > 0);
         assert (data.length == rowLabels.length);
-        assert (data[0].length == (columnLabels.length));
+        assert (data.length == 0 || data[0].length == (columnLabels.length));
+
+        this.columns = new ArrayList<>(columnLabels.length);
+        for (int column = 0; column < columnLabels.length; ++column) {
+            DataType[] columnData = (DataType[]) new Object[data.length];
+            for (int row = 0; row < data.length; ++row) {
+                columnData[row] = data[row][column];
+            }
+            columns.add(DataColumn.encode(columnData));
+        }
     }
 
     static DataTable<String> parseFromTi3Data(String[] columnLabels, BufferedReader br) throws IOException {
@@ -75,7 +83,11 @@ class DataTable<DataType> {
     }
 
     public DataType getDataItem(int rowIndex, int columnIndex) {
-        return data[rowIndex][columnIndex];
+        return columns.get(columnIndex).get(rowIndex);
+    }
+
+    DataColumn<DataType> getColumn(int columnIndex) {
+        return columns.get(columnIndex);
     }
 
     public int numberOfRows() {
@@ -93,30 +105,52 @@ class DataTable<DataType> {
 
         DataTable<?> dataTable = (DataTable<?>) o;
 
-        return (rowLabels != null ? rowLabels.equals(dataTable.rowLabels) : dataTable.rowLabels == null) && (columnLabels != null ? columnLabels.equals(dataTable.columnLabels) : dataTable.columnLabels == null) && Arrays.deepEquals(data, dataTable.data);
+        return (rowLabels != null ? rowLabels.equals(dataTable.rowLabels) : dataTable.rowLabels == null) && (columnLabels != null ? columnLabels.equals(dataTable.columnLabels) : dataTable.columnLabels == null) && contentEquals(dataTable);
 
     }
 
+    private boolean contentEquals(DataTable<?> other) {
+        if (numberOfRows() != other.numberOfRows() || numberOfColumns() != other.numberOfColumns()) {
+            return false;
+        }
+        for (int column = 0; column < numberOfColumns(); ++column) {
+            for (int row = 0; row < numberOfRows(); ++row) {
+                Object item = getDataItem(row, column);
+                Object otherItem = other.getDataItem(row, column);
+                if (item != null ? !item.equals(otherItem) : otherItem != null) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     @Override
     public int hashCode() {
         int result = rowLabels != null ? rowLabels.hashCode() : 0;
         result = 31 * result + (columnLabels != null ? columnLabels.hashCode() : 0);
-        result = 31 * result + Arrays.deepHashCode(data);
+        for (int row = 0; row < numberOfRows(); ++row) {
+            for (int column = 0; column < numberOfColumns(); ++column) {
+                DataType item = getDataItem(row, column);
+                result = 31 * result + (item != null ? item.hashCode() : 0);
+            }
+        }
         return result;
     }
 
     public void addColumn(String label, DataType[] column) {
-        columnLabels.add(label);
-        for (int i = 0; i < data.length; ++i) {
-            DataType[] oldRow = data[i];
-            data[i] = Arrays.copyOf(oldRow, oldRow.length + 1);
-            data[i][oldRow.length] = column[i];
+        if (column.length != numberOfRows()) {
+            throw new IllegalArgumentException(
+                    "Column " + label + " has " + column.length + " values, expected " + numberOfRows());
         }
+        columnLabels.add(label);
+        columns.add(DataColumn.encode(column.clone()));
     }
 
     public void addRow(String label, DataType[] row) {
         rowLabels.add(label);
-        data = Arrays.copyOf(data, data.length + 1);
-        data[data.length - 1] = row;
+        for (int column = 0; column < columns.size(); ++column) {
+            columns.set(column, columns.get(column).append(row[column]));
+        }
     }
 }
@@ -0,0 +1,216 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Michael Mauderer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A spatial index of the faces of a convex hull, keyed by their direction as seen from a point inside
+ * the hull.
+ * <p> Directions are mapped onto the six faces of a cube around the centre, each divided into a grid of
+ * cells. Every cell lists the hull faces whose cone from the centre overlaps the cell, so the face hit by
+ * the ray from the centre through any point is always among the faces of the point's cell.
+ */
+class DirectionGrid {
+
+    static final int MAX_RESOLUTION = 64;
+
+    private static final int CUBE_FACES = 6;
+    private static final double MARGIN = 1e-9;
+
+    private final int resolution;
+    private final int[] cellStart;
+    private final int[] cellFaces;
+
+    /**
+     * Indexes the given triangles, which are given as three vertex indices each.
+     */
+    DirectionGrid(int resolution, double[] vertices, int[] faces, double[] center) {
+        if (resolution <= 0 || resolution > MAX_RESOLUTION) {
+            throw new IllegalArgumentException("Resolution must be between 1 and " + MAX_RESOLUTION + ": " + resolution);
+        }
+        this.resolution = resolution;
+
+        int numberOfCells = CUBE_FACES * resolution * resolution;
+
+        // Collect (cell, face) pairs first and sort them by cell afterwards.
+        int[] pairs = new int[2 * faces.length];
+        int numberOfPairs = 0;
+        for (int face = 0; face < faces.length / 3; ++face) {
+            ArrayList<double[]> triangle = new ArrayList<>(3);
+            for (int k = 0; k < 3; ++k) {
+                int vertex = faces[3 * face + k];
+                triangle.add(new double[]{
+                        vertices[3 * vertex] - center[0],
+                        vertices[3 * vertex + 1] - center[1],
+                        vertices[3 * vertex + 2] - center[2]
+                });
+            }
+            for (int cubeFace = 0; cubeFace < CUBE_FACES; ++cubeFace) {
+                int[] range = cellRange(triangle, cubeFace);
+                if (range == null) {
+                    continue;
+                }
+                for (int i = range[0]; i <= range[1]; ++i) {
+                    for (int j = range[2]; j <= range[3]; ++j) {
+                        if (numberOfPairs == pairs.length / 2) {
+                            pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+                        }
+                        pairs[2 * numberOfPairs] = cellIndex(cubeFace, i, j);
+                        pairs[2 * numberOfPairs + 1] = face;
+                        ++numberOfPairs;
+                    }
+                }
+            }
+        }
+
+        cellStart = new int[numberOfCells + 1];
+        for (int pair = 0; pair < numberOfPairs; ++pair) {
+            ++cellStart[pairs[2 * pair] + 1];
+        }
+        for (int cell = 0; cell < numberOfCells; ++cell) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        cellFaces = new int[numberOfPairs];
+        int[] fill = Arrays.copyOf(cellStart, numberOfCells);
+        for (int pair = 0; pair < numberOfPairs; ++pair) {
+            cellFaces[fill[pairs[2 * pair]]++] = pairs[2 * pair + 1];
+        }
+    }
+
+    /**
+     * Returns a resolution that results in about two faces per cell.
+     */
+    static int resolutionFor(int numberOfFaces) {
+        int resolution = (int) Math.ceil(Math.sqrt(numberOfFaces / (2.0 * CUBE_FACES)));
+        return Math.max(1, Math.min(resolution, MAX_RESOLUTION));
+    }
+
+    private static int axis(int cubeFace) {
+        return cubeFace / 2;
+    }
+
+    private static double sign(int cubeFace) {
+        return cubeFace % 2 == 0 ? 1 : -1;
+    }
+
+    /**
+     * Keeps the part of the polygon where {@code s * p[k] + t * p[j] >= 0}.
+     */
+    private static ArrayList<double[]> clip(ArrayList<double[]> polygon, int k, double s, int j, double t) {
+        ArrayList<double[]> result = new ArrayList<>(polygon.size() + 1);
+        for (int i = 0; i < polygon.size(); ++i) {
+            double[] previous = polygon.get((i + polygon.size() - 1) % polygon.size());
+            double[] current = polygon.get(i);
+            double previousSide = s * previous[k] + t * previous[j];
+            double currentSide = s * current[k] + t * current[j];
+            if ((previousSide < 0) != (currentSide < 0)) {
+                double w = previousSide / (previousSide - currentSide);
+                result.add(new double[]{
+                        previous[0] + w * (current[0] - previous[0]),
+                        previous[1] + w * (current[1] - previous[1]),
+                        previous[2] + w * (current[2] - previous[2])
+                });
+            }
+            if (currentSide >= 0) {
+                result.add(current);
+            }
+        }
+        return result;
+    }
+
+    private int gridIndex(double coordinate) {
+        int index = (int) Math.floor((coordinate + 1) / 2 * resolution);
+        return Math.max(0, Math.min(index, resolution - 1));
+    }
+
+    private int cellIndex(int cubeFace, int i, int j) {
+        return (cubeFace * resolution + i) * resolution + j;
+    }
+
+    /**
+     * Returns the range of cells {i0, i1, j0, j1} on the cube face that the cone of the triangle overlaps,
+     * or null if it does not overlap the cube face.
+     */
+    private int[] cellRange(ArrayList<double[]> triangle, int cubeFace) {
+        int k = axis(cubeFace);
+        double s = sign(cubeFace);
+        int j1 = (k + 1) % 3;
+        int j2 = (k + 2) % 3;
+
+        ArrayList<double[]> polygon = triangle;
+        polygon = clip(polygon, k, s, j1, 1);
+        polygon = clip(polygon, k, s, j1, -1);
+        polygon = clip(polygon, k, s, j2, 1);
+        polygon = clip(polygon, k, s, j2, -1);
+
+        double minU = Double.POSITIVE_INFINITY, maxU = Double.NEGATIVE_INFINITY;
+        double minV = Double.POSITIVE_INFINITY, maxV = Double.NEGATIVE_INFINITY;
+        for (double[] point : polygon) {
+            double w = s * point[k];
+            if (w <= 0) {
+                continue;
+            }
+            minU = Math.min(minU, point[j1] / w);
+            maxU = Math.max(maxU, point[j1] / w);
+            minV = Math.min(minV, point[j2] / w);
+            maxV = Math.max(maxV, point[j2] / w);
+        }
+        if (minU > maxU) {
+            return null;
+        }
+        return new int[]{gridIndex(minU - MARGIN), gridIndex(maxU + MARGIN), gridIndex(minV - MARGIN), gridIndex(maxV + MARGIN)};
+    }
+
+    /**
+     * Returns the cell containing the direction, which must not be zero.
+     */
+    int cellOf(double x, double y, double z) {
+        double ax = Math.abs(x), ay = Math.abs(y), az = Math.abs(z);
+        int k;
+        if (ax >= ay && ax >= az) {
+            k = 0;
+        } else if (ay >= az) {
+            k = 1;
+        } else {
+            k = 2;
+        }
+        double[] direction = {x, y, z};
+        int cubeFace = 2 * k + (direction[k] >= 0 ? 0 : 1);
+        double w = Math.abs(direction[k]);
+        return cellIndex(cubeFace, gridIndex(direction[(k + 1) % 3] / w), gridIndex(direction[(k + 2) % 3] / w));
+    }
+
+    int cellStart(int cell) {
+        return cellStart[cell];
+    }
+
+    int cellEnd(int cell) {
+        return cellStart[cell + 1];
+    }
+
+    int faceAt(int index) {
+        return cellFaces[index];
+    }
+}
@@ -0,0 +1,596 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Michael Mauderer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The gamut boundary of a set of measured colours, given as the convex hull of the points.
+ * <p> Points are passed as interleaved coordinates, i.e., {@code {x0, y0, z0, x1, y1, z1, ...}}. The
+ * coordinates can be in any three dimensional colour space, e.g., XYZ or Lab.
+ * <p> The hull is built with exact orientation tests, so points that lie on or very close to the plane of
+ * a face are handled consistently and the hull is convex for any input.
+ * <p> Containment queries only look at the hull faces in the direction of the point as seen from the
+ * centre of the hull, see {@link DirectionGrid}. Distance queries search the closest face in a
+ * {@link TriangleTree}.
+ */
+public class GamutBoundary {
+
+    public static final String[] XYZ_FIELDS = {"XYZ_X", "XYZ_Y", "XYZ_Z"};
+    public static final String[] LAB_FIELDS = {"LAB_L", "LAB_A", "LAB_B"};
+
+    static final int POINTS_PER_TASK = 1 << 12;
+
+    private static final double EPSILON_SCALE = 1e-10;
+    // Relative error bound of the floating point orientation determinant, compare Shewchuk, Adaptive
+    // Precision Floating-Point Arithmetic and Fast Robust Geometric Predicates.
+    private static final double ORIENTATION_ERROR_BOUND = (7.0 + 56.0 * Math.ulp(0.5)) * Math.ulp(0.5);
+
+    private final double[] vertices;
+    // Three vertex indices per face, ordered counter-clockwise when seen from the outside.
+    private final int[] faces;
+    // Outward unit normal and offset per face, the plane is given by n * p = offset.
+    private final double[] planes;
+    private final double epsilon;
+    private final double[] center = new double[3];
+    private final DirectionGrid grid;
+    private final TriangleTree tree;
+
+    private GamutBoundary(double[] vertices, ArrayList<HullFace> hull, double epsilon) {
+        this.vertices = vertices;
+        this.epsilon = epsilon;
+        this.faces = new int[3 * hull.size()];
+        this.planes = new double[4 * hull.size()];
+        for (int i = 0; i < hull.size(); ++i) {
+            HullFace face = hull.get(i);
+            System.arraycopy(face.vertices, 0, faces, 3 * i, 3);
+            System.arraycopy(exactPlane(vertices, face.vertices[0], face.vertices[1], face.vertices[2]), 0, planes, 4 * i, 4);
+        }
+
+        // The mean of the hull vertices lies strictly inside the hull.
+        HashSet<Integer> hullVertices = new HashSet<>();
+        for (int vertex : faces) {
+            if (hullVertices.add(vertex)) {
+                for (int k = 0; k < 3; ++k) {
+                    center[k] += vertices[3 * vertex + k];
+                }
+            }
+        }
+        for (int k = 0; k < 3; ++k) {
+            center[k] /= hullVertices.size();
+        }
+
+        this.grid = new DirectionGrid(DirectionGrid.resolutionFor(hull.size()), vertices, faces, center);
+        this.tree = new TriangleTree(vertices, faces, planes, center);
+    }
+
+    /**
+     * Computes the convex hull of the given points.
+     *
+     * @throws IllegalArgumentException if the points do not span a volume.
+     */
+    public static GamutBoundary fromPoints(double[] points) {
+        if (points.length % 3 != 0) {
+            throw new IllegalArgumentException("Number of coordinates is not a multiple of three: " + points.length);
+        }
+        int numberOfPoints = points.length / 3;
+        if (numberOfPoints < 4) {
+            throw new IllegalArgumentException("At least four points are required, got " + numberOfPoints);
+        }
+
+        double extent = 0;
+        for (double coordinate : points) {
+            extent = Math.max(extent, Math.abs(coordinate));
+        }
+        double epsilon = EPSILON_SCALE * Math.max(extent, 1);
+
+        int[] initial = initialTetrahedron(points, epsilon);
+        ArrayList<HullFace> hull = new ArrayList<>();
+        hull.add(HullFace.facing(points, initial[0], initial[1], initial[2], initial[3]));
+        hull.add(HullFace.facing(points, initial[0], initial[1], initial[3], initial[2]));
+        hull.add(HullFace.facing(points, initial[0], initial[2], initial[3], initial[1]));
+        hull.add(HullFace.facing(points, initial[1], initial[2], initial[3], initial[0]));
+
+        // Quickhull: every point outside the hull is assigned to one face it lies above, and the point
+        // furthest above a face is added next.
+        ArrayDeque<HullFace> pendingFaces = new ArrayDeque<>();
+        for (int point = 0; point < numberOfPoints; ++point) {
+            assignToFace(points, hull, point);
+        }
+        pendingFaces.addAll(hull);
+        while (!pendingFaces.isEmpty()) {
+            HullFace face = pendingFaces.removeFirst();
+            if (!face.removed && face.numberOfOutsidePoints > 0) {
+                addPoint(points, hull, face.furthestOutsidePoint(points), pendingFaces);
+            }
+        }
+
+        return new GamutBoundary(points.clone(), hull, epsilon);
+    }
+
+    /**
+     * Computes the convex hull of the values of the given fields, e.g., {@link #XYZ_FIELDS}.
+     *
+     * @throws IllegalArgumentException if one of the fields does not exist, contains values that are not
+     *                                  numbers or the values do not span a volume.
+     */
+    public static GamutBoundary fromTi3Data(Ti3Data data, String[] fields) {
+        if (fields.length != 3) {
+            throw new IllegalArgumentException("Exactly three fields are required, got " + fields.length);
+        }
+        DataTable<String> table = data.getTableData();
+        int[] columns = new int[3];
+        for (int k = 0; k < 3; ++k) {
+            columns[k] = table.columnLabels.indexOf(fields[k]);
+            if (columns[k] < 0) {
+                throw new IllegalArgumentException("Unknown field: " + fields[k]);
+            }
+        }
+
+        double[] points = new double[3 * table.numberOfRows()];
+        for (int row = 0; row < table.numberOfRows(); ++row) {
+            for (int k = 0; k < 3; ++k) {
+                String value = table.getDataItem(row, columns[k]);
+                try {
+                    points[3 * row + k] = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(
+                            "Value of " + fields[k] + " in row " + table.rowLabels.get(row) + " is not a number: " + value, e);
+                }
+            }
+        }
+        return fromPoints(points);
+    }
+
+    private static int[] initialTetrahedron(double[] points, double epsilon) {
+        int numberOfPoints = points.length / 3;
+
+        int first = 0;
+        for (int point = 1; point < numberOfPoints; ++point) {
+            if (points[3 * point] < points[3 * first]) {
+                first = point;
+            }
+        }
+
+        int second = first;
+        double maxDistance = 0;
+        for (int point = 0; point < numberOfPoints; ++point) {
+            double distance = norm(difference(points, point, first));
+            if (distance > maxDistance) {
+                maxDistance = distance;
+                second = point;
+            }
+        }
+        if (maxDistance <= epsilon) {
+            throw new IllegalArgumentException("Points do not span a volume");
+        }
+
+        double[] direction = difference(points, second, first);
+        int third = first;
+        maxDistance = 0;
+        for (int point = 0; point < numberOfPoints; ++point) {
+            double distance = norm(cross(direction, difference(points, point, first)));
+            if (distance > maxDistance) {
+                maxDistance = distance;
+                third = point;
+            }
+        }
+        if (maxDistance <= epsilon * norm(direction)) {
+            throw new IllegalArgumentException("Points do not span a volume");
+        }
+
+        double[] plane = plane(points, first, second, third);
+        int fourth = first;
+        maxDistance = 0;
+        for (int point = 0; point < numberOfPoints; ++point) {
+            double distance = Math.abs(planeDistance(plane, 0, points, point));
+            if (distance > maxDistance) {
+                maxDistance = distance;
+                fourth = point;
+            }
+        }
+        if (maxDistance <= epsilon) {
+            throw new IllegalArgumentException("Points do not span a volume");
+        }
+
+        return new int[]{first, second, third, fourth};
+    }
+
+    private static void addPoint(double[] points, ArrayList<HullFace> hull, int point, ArrayDeque<HullFace> pendingFaces) {
+        HashSet<Long> visibleEdges = new HashSet<>();
+        ArrayList<HullFace> visibleFaces = new ArrayList<>();
+        int index = 0;
+        while (index < hull.size()) {
+            HullFace face = hull.get(index);
+            if (face.orientation(points, point) > 0) {
+                for (int k = 0; k < 3; ++k) {
+                    visibleEdges.add(edge(face.vertices[k], face.vertices[(k + 1) % 3]));
+                }
+                face.removed = true;
+                visibleFaces.add(face);
+                // The order of the faces does not matter, so remove by moving the last face into the gap.
+                HullFace last = hull.remove(hull.size() - 1);
+                if (index < hull.size()) {
+                    hull.set(index, last);
+                }
+            } else {
+                ++index;
+            }
+        }
+
+        // Edges of visible faces whose opposite face is not visible form the horizon around the point. The
+        // new faces keep the direction of the edge in the removed face, so they are oriented outwards.
+        ArrayList<HullFace> newFaces = new ArrayList<>();
+        for (long visibleEdge : visibleEdges) {
+            int from = (int) (visibleEdge >>> 32);
+            int to = (int) visibleEdge;
+            if (!visibleEdges.contains(edge(to, from))) {
+                newFaces.add(new HullFace(points, from, to, point));
+            }
+        }
+
+        // Points that are not above any of the new faces are inside the hull and can be dropped.
+        for (HullFace face : visibleFaces) {
+            for (int i = 0; i < face.numberOfOutsidePoints; ++i) {
+                int outsidePoint = face.outsidePoints[i];
+                if (outsidePoint != point) {
+                    assignToFace(points, newFaces, outsidePoint);
+                }
+            }
+        }
+        hull.addAll(newFaces);
+        pendingFaces.addAll(newFaces);
+    }
+
+    private static void assignToFace(double[] points, ArrayList<HullFace> faces, int point) {
+        for (HullFace face : faces) {
+            if (face.orientation(points, point) > 0) {
+                face.addOutsidePoint(point);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Exact sign of the orientation of point p relative to the triangle abc. The result is positive if p
+     * lies on the side from which abc appears counter-clockwise, negative if it lies on the other side
+     * and zero if the four points are coplanar.
+     */
+    static int orientation(double[] points, int a, int b, int c, int p) {
+        double px = points[3 * p], py = points[3 * p + 1], pz = points[3 * p + 2];
+        double adx = points[3 * a] - px, ady = points[3 * a + 1] - py, adz = points[3 * a + 2] - pz;
+        double bdx = points[3 * b] - px, bdy = points[3 * b + 1] - py, bdz = points[3 * b + 2] - pz;
+        double cdx = points[3 * c] - px, cdy = points[3 * c + 1] - py, cdz = points[3 * c + 2] - pz;
+
+        double bdycdz = bdy * cdz, bdzcdy = bdz * cdy;
+        double cdyadz = cdy * adz, cdzady = cdz * ady;
+        double adybdz = ady * bdz, adzbdy = adz * bdy;
+        double determinant = adx * (bdycdz - bdzcdy) + bdx * (cdyadz - cdzady) + cdx * (adybdz - adzbdy);
+        double permanent = (Math.abs(bdycdz) + Math.abs(bdzcdy)) * Math.abs(adx)
+                + (Math.abs(cdyadz) + Math.abs(cdzady)) * Math.abs(bdx)
+                + (Math.abs(adybdz) + Math.abs(adzbdy)) * Math.abs(cdx);
+        if (Math.abs(determinant) > ORIENTATION_ERROR_BOUND * permanent) {
+            return determinant > 0 ? -1 : 1;
+        }
+
+        // The floating point result is not reliable, so evaluate the determinant exactly.
+        BigDecimal[] ad = exactDifference(points, a, p);
+        BigDecimal[] bd = exactDifference(points, b, p);
+        BigDecimal[] cd = exactDifference(points, c, p);
+        BigDecimal exact = ad[0].multiply(bd[1].multiply(cd[2]).subtract(bd[2].multiply(cd[1])))
+                .add(bd[0].multiply(cd[1].multiply(ad[2]).subtract(cd[2].multiply(ad[1]))))
+                .add(cd[0].multiply(ad[1].multiply(bd[2]).subtract(ad[2].multiply(bd[1]))));
+        return -exact.signum();
+    }
+
+    private static BigDecimal[] exactDifference(double[] points, int a, int b) {
+        BigDecimal[] difference = new BigDecimal[3];
+        for (int k = 0; k < 3; ++k) {
+            difference[k] = new BigDecimal(points[3 * a + k]).subtract(new BigDecimal(points[3 * b + k]));
+        }
+        return difference;
+    }
+
+    /**
+     * Computes the plane of the triangle from the exact cross product of its edges, so the normal is
+     * accurate even for long and thin triangles.
+     */
+    private static double[] exactPlane(double[] points, int a, int b, int c) {
+        BigDecimal[] ab = exactDifference(points, b, a);
+        BigDecimal[] ac = exactDifference(points, c, a);
+        double[] normal = {
+                ab[1].multiply(ac[2]).subtract(ab[2].multiply(ac[1])).doubleValue(),
+                ab[2].multiply(ac[0]).subtract(ab[0].multiply(ac[2])).doubleValue(),
+                ab[0].multiply(ac[1]).subtract(ab[1].multiply(ac[0])).doubleValue()
+        };
+        double length = norm(normal);
+        if (length > 0) {
+            for (int k = 0; k < 3; ++k) {
+                normal[k] /= length;
+            }
+        }
+        double offset = normal[0] * points[3 * a] + normal[1] * points[3 * a + 1] + normal[2] * points[3 * a + 2];
+        return new double[]{normal[0], normal[1], normal[2], offset};
+    }
+
+    private static long edge(int from, int to) {
+        return ((long) from << 32) | (to & 0xFFFFFFFFL);
+    }
+
+    private static double[] plane(double[] points, int a, int b, int c) {
+        double[] normal = cross(difference(points, b, a), difference(points, c, a));
+        double length = norm(normal);
+        if (length > 0) {
+            for (int k = 0; k < 3; ++k) {
+                normal[k] /= length;
+            }
+        }
+        double offset = normal[0] * points[3 * a] + normal[1] * points[3 * a + 1] + normal[2] * points[3 * a + 2];
+        return new double[]{normal[0], normal[1], normal[2], offset};
+    }
+
+    private static double planeDistance(double[] planes, int plane, double[] points, int point) {
+        return planes[4 * plane] * points[3 * point]
+                + planes[4 * plane + 1] * points[3 * point + 1]
+                + planes[4 * plane + 2] * points[3 * point + 2]
+                - planes[4 * plane + 3];
+    }
+
+    private static double[] difference(double[] points, int a, int b) {
+        return new double[]{
+                points[3 * a] - points[3 * b],
+                points[3 * a + 1] - points[3 * b + 1],
+                points[3 * a + 2] - points[3 * b + 2]
+        };
+    }
+
+    private static double[] cross(double[] u, double[] v) {
+        return new double[]{
+                u[1] * v[2] - u[2] * v[1],
+                u[2] * v[0] - u[0] * v[2],
+                u[0] * v[1] - u[1] * v[0]
+        };
+    }
+
+    private static double norm(double[] v) {
+        return Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+    }
+
+    public int numberOfFaces() {
+        return faces.length / 3;
+    }
+
+    public boolean contains(double x, double y, double z) {
+        return containsPoint(new double[]{x, y, z}, 0);
+    }
+
+    /**
+     * Signed Euclidean distance of the point to the gamut boundary. The distance is negative for points
+     * inside and positive for points outside of the gamut.
+     */
+    public double distance(double x, double y, double z) {
+        return pointDistance(new double[]{x, y, z}, 0);
+    }
+
+    /**
+     * Tests for each of the given points whether it lies inside the gamut.
+     */
+    public boolean[] contains(double[] points) {
+        return contains(points, null);
+    }
+
+    /**
+     * Tests for each of the given points whether it lies inside the gamut. The points are split into
+     * tasks that run on the given executor, or on the calling thread if it is null.
+     */
+    public boolean[] contains(final double[] points, ExecutorService executor) {
+        final boolean[] result = new boolean[checkPoints(points)];
+        forEachPoint(result.length, executor, new PointRangeTask() {
+            @Override
+            public void run(int fromPoint, int toPoint) {
+                for (int point = fromPoint; point < toPoint; ++point) {
+                    result[point] = containsPoint(points, point);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Computes the signed distance for each of the given points.
+     *
+     * @see #distance(double, double, double)
+     */
+    public double[] distance(double[] points) {
+        return distance(points, null);
+    }
+
+    /**
+     * Computes the signed distance for each of the given points. The points are split into tasks that run
+     * on the given executor, or on the calling thread if it is null.
+     *
+     * @see #distance(double, double, double)
+     */
+    public double[] distance(final double[] points, ExecutorService executor) {
+        final double[] result = new double[checkPoints(points)];
+        forEachPoint(result.length, executor, new PointRangeTask() {
+            @Override
+            public void run(int fromPoint, int toPoint) {
+                for (int point = fromPoint; point < toPoint; ++point) {
+                    result[point] = pointDistance(points, point);
+                }
+            }
+        });
+        return result;
+    }
+
+    private boolean containsPoint(double[] points, int point) {
+        double dx = points[3 * point] - center[0];
+        double dy = points[3 * point + 1] - center[1];
+        double dz = points[3 * point + 2] - center[2];
+        if (dx == 0 && dy == 0 && dz == 0) {
+            return true;
+        }
+        // A point is outside exactly if it lies beyond the face hit by the ray from the centre through it,
+        // which is always a face of the point's cell.
+        int cell = grid.cellOf(dx, dy, dz);
+        for (int i = grid.cellStart(cell); i < grid.cellEnd(cell); ++i) {
+            if (planeDistance(planes, grid.faceAt(i), points, point) > epsilon) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double pointDistance(double[] points, int point) {
+        boolean inside = containsPoint(points, point);
+
+        // The closest boundary point lies on the closest face. Faces in the direction of the point are
+        // usually close, so they give a good initial bound for the search.
+        double bound = Double.POSITIVE_INFINITY;
+        double dx = points[3 * point] - center[0];
+        double dy = points[3 * point + 1] - center[1];
+        double dz = points[3 * point + 2] - center[2];
+        if (dx != 0 || dy != 0 || dz != 0) {
+            int cell = grid.cellOf(dx, dy, dz);
+            for (int i = grid.cellStart(cell); i < grid.cellEnd(cell); ++i) {
+                bound = Math.min(bound, faceDistance(grid.faceAt(i), points, point, inside));
+            }
+        }
+        double distance = Math.max(tree.nearestDistance(points, point, bound, inside), 0);
+        return inside ? -distance : distance;
+    }
+
+    /**
+     * Distance of the point to the plane of the face for points inside the gamut and to the face itself
+     * for points outside the gamut. The smallest of these is the distance to the gamut boundary.
+     */
+    private double faceDistance(int face, double[] points, int point, boolean inside) {
+        if (inside) {
+            return -planeDistance(planes, face, points, point);
+        }
+        return Math.sqrt(TriangleTree.triangleDistanceSquared(
+                vertices, faces[3 * face], faces[3 * face + 1], faces[3 * face + 2], points, point));
+    }
+
+    private static int checkPoints(double[] points) {
+        if (points.length % 3 != 0) {
+            throw new IllegalArgumentException("Number of coordinates is not a multiple of three: " + points.length);
+        }
+        return points.length / 3;
+    }
+
+    private static void forEachPoint(int numberOfPoints, ExecutorService executor, final PointRangeTask task) {
+        if (executor == null || numberOfPoints <= POINTS_PER_TASK) {
+            task.run(0, numberOfPoints);
+            return;
+        }
+
+        ArrayList<Future<Void>> results = new ArrayList<>();
+        try {
+            for (int fromPoint = 0; fromPoint < numberOfPoints; fromPoint += POINTS_PER_TASK) {
+                final int taskStart = fromPoint;
+                final int taskEnd = Math.min(fromPoint + POINTS_PER_TASK, numberOfPoints);
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        task.run(taskStart, taskEnd);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying gamut", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Querying gamut failed", e.getCause());
+        } finally {
+            for (Future<Void> result : results) {
+                result.cancel(true);
+            }
+        }
+    }
+
+    private interface PointRangeTask {
+        void run(int fromPoint, int toPoint);
+    }
+
+    /**
+     * A face of the hull while it is being built, with its vertices ordered counter-clockwise when seen
+     * from the outside and the points outside of the hull that have been assigned to it.
+     */
+    private static final class HullFace {
+        final int[] vertices;
+        final double[] plane;
+        int[] outsidePoints = new int[0];
+        int numberOfOutsidePoints;
+        boolean removed;
+
+        HullFace(double[] points, int a, int b, int c) {
+            this.vertices = new int[]{a, b, c};
+            this.plane = plane(points, a, b, c);
+        }
+
+        /**
+         * Creates the face through a, b and c that has the given point on its inner side.
+         */
+        static HullFace facing(double[] points, int a, int b, int c, int inside) {
+            if (GamutBoundary.orientation(points, a, b, c, inside) > 0) {
+                return new HullFace(points, a, c, b);
+            }
+            return new HullFace(points, a, b, c);
+        }
+
+        int orientation(double[] points, int point) {
+            return GamutBoundary.orientation(points, vertices[0], vertices[1], vertices[2], point);
+        }
+
+        void addOutsidePoint(int point) {
+            if (numberOfOutsidePoints == outsidePoints.length) {
+                outsidePoints = Arrays.copyOf(outsidePoints, Math.max(2 * numberOfOutsidePoints, 4));
+            }
+            outsidePoints[numberOfOutsidePoints++] = point;
+        }
+
+        int furthestOutsidePoint(double[] points) {
+            int furthest = outsidePoints[0];
+            for (int i = 1; i < numberOfOutsidePoints; ++i) {
+                if (planeDistance(plane, 0, points, outsidePoints[i]) > planeDistance(plane, 0, points, furthest)) {
+                    furthest = outsidePoints[i];
+                }
+            }
+            return furthest;
+        }
+    }
+}
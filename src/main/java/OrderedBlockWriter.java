@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Michael Mauderer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Produces blocks of output on a pool of worker threads and writes them to a stream in the order they
+ * were submitted.
+ * <p> At most twice the number of threads blocks are pending at any time; submitting further blocks
+ * waits for the oldest one to be written. Closing shuts down the worker threads but leaves the stream
+ * open.
+ */
+class OrderedBlockWriter implements Closeable {
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int maxBlocksInFlight;
+    private final ArrayDeque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+
+    OrderedBlockWriter(OutputStream out, int numberOfThreads) {
+        if (numberOfThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + numberOfThreads);
+        }
+        this.out = out;
+        this.maxBlocksInFlight = 2 * numberOfThreads;
+        this.executor = Executors.newFixedThreadPool(numberOfThreads);
+    }
+
+    void submit(Callable<byte[]> block) throws IOException {
+        pendingBlocks.addLast(executor.submit(block));
+        while (pendingBlocks.size() > maxBlocksInFlight) {
+            writeNextBlock();
+        }
+    }
+
+    /**
+     * Writes the leading blocks that are already finished, without waiting for any other block.
+     */
+    void writeCompletedBlocks() throws IOException {
+        while (!pendingBlocks.isEmpty() && pendingBlocks.peekFirst().isDone()) {
+            writeNextBlock();
+        }
+    }
+
+    void writeAllBlocks() throws IOException {
+        while (!pendingBlocks.isEmpty()) {
+            writeNextBlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void writeNextBlock() throws IOException {
+        Future<byte[]> next = pendingBlocks.removeFirst();
+        try {
+            out.write(next.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for block");
+        } catch (ExecutionException e) {
+            throw new IOException("Producing block failed", e.getCause());
+        }
+    }
+}
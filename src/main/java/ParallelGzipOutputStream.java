@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Michael Mauderer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An output stream that gzip compresses the written data on several threads.
+ * <p> The data is split into blocks that are compressed independently into separate gzip members. The
+ * members are written to the underlying stream in order, so the result is a valid multi-member gzip file
+ * that can be read with {@link java.util.zip.GZIPInputStream}.
+ */
+class ParallelGzipOutputStream extends OutputStream {
+
+    static final int DEFAULT_BLOCK_SIZE = 1 << 18;
+
+    private final OutputStream out;
+    private final OrderedBlockWriter blockWriter;
+    private final int blockSize;
+
+    private byte[] block;
+    private int blockLength;
+    private boolean closed;
+
+    ParallelGzipOutputStream(OutputStream out, int blockSize, int numberOfThreads) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.blockWriter = new OrderedBlockWriter(out, numberOfThreads);
+        this.block = new byte[blockSize];
+    }
+
+    private static byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(data, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int count = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Writes all blocks that have been compressed so far. Data of the current, incomplete block is only
+     * written once the block is full or the stream is closed.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        blockWriter.writeCompletedBlocks();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (blockLength > 0) {
+                submitBlock();
+            }
+            blockWriter.writeAllBlocks();
+        } finally {
+            blockWriter.close();
+            out.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        block = new byte[blockSize];
+        blockLength = 0;
+        blockWriter.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                return compress(data, length);
+            }
+        });
+    }
+}
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
 
 /**
  * A wrapper for accessing the data of a Ti3 file.
@@ -36,6 +37,11 @@ import java.util.HashMap;
  */
 public class Ti3Data {
 
+    /**
+     * Files with this suffix are read and written gzip compressed.
+     */
+    public static final String GZIP_SUFFIX = ".gz";
+
     private final HashMap<Keyword, String> properties = new HashMap<>();
     private String fileType;
     private DataTable<String> data;
@@ -101,7 +107,22 @@ public class Ti3Data {
     }
 
     public static Ti3Data parseFrom(File inputFile) throws IOException {
-        return parseFrom(new FileReader(inputFile));
+        InputStream in = new FileInputStream(inputFile);
+        Reader reader;
+        try {
+            if (isGzipFile(inputFile)) {
+                in = new GZIPInputStream(in);
+            }
+            reader = new InputStreamReader(in, "utf-8");
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return parseFrom(reader);
+    }
+
+    private static boolean isGzipFile(File file) {
+        return file.getName().endsWith(GZIP_SUFFIX);
     }
 
     private static String[] parseDataFormat(BufferedReader br) throws IOException {
@@ -183,8 +204,19 @@ public class Ti3Data {
     }
 
     public void writeFile(File outputFile) throws IOException {
+        writeFile(outputFile, 1);
+    }
+
+    /**
+     * Writes the file using up to the given number of threads for formatting and compression.
+     */
+    public void writeFile(File outputFile, int numberOfThreads) throws IOException {
         Ti3FileWriter writer = new Ti3FileWriter(this);
-        writer.write(new FileOutputStream(outputFile));
+        if (isGzipFile(outputFile)) {
+            writer.writeCompressed(new FileOutputStream(outputFile), numberOfThreads);
+        } else {
+            writer.write(new FileOutputStream(outputFile), numberOfThreads);
+        }
     }
 
     @Override
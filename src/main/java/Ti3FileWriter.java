@@ -23,9 +23,13 @@
  */
 
 import java.io.*;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
 
 class Ti3FileWriter {
 
+    static final int DEFAULT_ROWS_PER_BLOCK = 4096;
+
     private final Ti3Data fileToWrite;
 
     Ti3FileWriter(Ti3Data fileToWrite) {
@@ -42,6 +46,66 @@ class Ti3FileWriter {
         }
     }
 
+    /**
+     * Writes the file with the data rows being formatted in parallel. The rows are split into blocks that
+     * are formatted on a pool of worker threads and written in order, so the output is identical to the
+     * one of {@link #write(OutputStream)}.
+     */
+    public void writeParallel(OutputStream outFile, int numberOfThreads) throws IOException {
+        writeParallel(outFile, numberOfThreads, DEFAULT_ROWS_PER_BLOCK);
+    }
+
+    void writeParallel(OutputStream outFile, int numberOfThreads, int rowsPerBlock) throws IOException {
+        if (rowsPerBlock <= 0) {
+            throw new IllegalArgumentException("Rows per block must be positive: " + rowsPerBlock);
+        }
+        try (OutputStream out = new BufferedOutputStream(outFile);
+             OrderedBlockWriter blockWriter = new OrderedBlockWriter(out, numberOfThreads)) {
+            Writer writer = new OutputStreamWriter(out, "utf-8");
+            writeKeywords(writer);
+            writer.write("\n");
+            writeFields(writer);
+            writer.write("\n");
+            writeDataBegin(writer);
+            writer.flush();
+            writeRowBlocks(blockWriter, rowsPerBlock);
+            writeDataEnd(writer);
+            writer.flush();
+        }
+    }
+
+    /**
+     * Writes the file using up to the given number of threads. Formatting only runs in parallel for
+     * files with more than {@link #DEFAULT_ROWS_PER_BLOCK} rows, smaller files are written serially.
+     */
+    public void write(OutputStream outFile, int numberOfThreads) throws IOException {
+        if (numberOfThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + numberOfThreads);
+        }
+        if (numberOfThreads > 1 && fileToWrite.getTableData().numberOfRows() > DEFAULT_ROWS_PER_BLOCK) {
+            writeParallel(outFile, numberOfThreads);
+        } else {
+            write(outFile);
+        }
+    }
+
+    /**
+     * Writes the file gzip compressed using up to the given number of threads. With more than one thread
+     * the compressed blocks are written as separate gzip members.
+     *
+     * @see #write(OutputStream, int)
+     */
+    public void writeCompressed(OutputStream outFile, int numberOfThreads) throws IOException {
+        if (numberOfThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + numberOfThreads);
+        }
+        if (numberOfThreads > 1) {
+            write(new ParallelGzipOutputStream(outFile, ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE, numberOfThreads), numberOfThreads);
+        } else {
+            write(new GZIPOutputStream(outFile));
+        }
+    }
+
     private void writeKeyValue(Writer writer, String key, String value) throws IOException {
         writer.write(key);
         writer.write(" ");
@@ -78,15 +142,26 @@ class Ti3FileWriter {
     }
 
     private void writeData(Writer writer) throws IOException {
-        DataTable<String> table = fileToWrite.getTableData();
-        String[] rowLabels = fileToWrite.getRowLabels();
+        writeDataBegin(writer);
+        writeRows(writer, fileToWrite.getRowLabels(), 0, fileToWrite.getTableData().numberOfRows());
+        writeDataEnd(writer);
+    }
 
+    private void writeDataBegin(Writer writer) throws IOException {
         writer.write("NUMBER_OF_SETS ");
-        writer.write(Integer.toString(table.numberOfRows()));
+        writer.write(Integer.toString(fileToWrite.getTableData().numberOfRows()));
         writer.write("\n");
 
         writer.write("BEGIN_DATA\n");
-        for (int row = 0; row < table.numberOfRows(); ++row) {
+    }
+
+    private void writeDataEnd(Writer writer) throws IOException {
+        writer.write("END_DATA\n");
+    }
+
+    private void writeRows(Writer writer, String[] rowLabels, int fromRow, int toRow) throws IOException {
+        DataTable<String> table = fileToWrite.getTableData();
+        for (int row = fromRow; row < toRow; ++row) {
             writer.write(rowLabels[row]);
             for (int column = 0; column < (table.numberOfColumns()); ++column) {
                 writer.write(" ");
@@ -94,8 +169,31 @@ class Ti3FileWriter {
             }
             writer.write("\n");
         }
-        writer.write("END_DATA\n");
+    }
 
+    private byte[] formatRows(String[] rowLabels, int fromRow, int toRow) throws IOException {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(block, "utf-8")) {
+            writeRows(writer, rowLabels, fromRow, toRow);
+        }
+        return block.toByteArray();
+    }
+
+    private void writeRowBlocks(OrderedBlockWriter blockWriter, int rowsPerBlock) throws IOException {
+        final String[] rowLabels = fileToWrite.getRowLabels();
+        int numberOfRows = fileToWrite.getTableData().numberOfRows();
+
+        for (int fromRow = 0; fromRow < numberOfRows; fromRow += rowsPerBlock) {
+            final int blockStart = fromRow;
+            final int blockEnd = Math.min(fromRow + rowsPerBlock, numberOfRows);
+            blockWriter.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return formatRows(rowLabels, blockStart, blockEnd);
+                }
+            });
+        }
+        blockWriter.writeAllBlocks();
     }
 
 }
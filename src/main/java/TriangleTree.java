@@ -0,0 +1,320 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Michael Mauderer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import java.util.Arrays;
+
+/**
+ * A bounding volume hierarchy over the faces of a convex hull for closest face queries.
+ * <p> Each node stores the axis aligned bounding box of its faces and, relative to a point inside the
+ * hull, the bounding box of their normals and the smallest distance of their planes. Both give a lower
+ * bound for the distance of a point to the faces of the node. Inner nodes split their faces at the
+ * median centroid along the longest axis of the box, the first child directly follows its parent.
+ */
+class TriangleTree {
+
+    private static final int MAX_LEAF_SIZE = 4;
+    private static final int NODE_BOUNDS = 13;
+
+    private final double[] vertices;
+    private final int[] faces;
+    private final double[] planes;
+    private final double[] center;
+    // Face indices ordered so that every node covers a contiguous range.
+    private final int[] order;
+    // Per node the minimum and maximum corner of the bounding box, the minimum and maximum corner of the
+    // bounding box of the normals and the smallest distance between the centre and a face plane.
+    private double[] bounds;
+    // Per node the index of the second child for inner nodes, or the start of the range for leaves.
+    private int[] nodeIndex;
+    // Per node the number of faces for leaves, zero for inner nodes.
+    private int[] nodeSize;
+    private int numberOfNodes;
+    private int depth;
+
+    /**
+     * Indexes the faces, given as three vertex indices each, with their planes given as outward unit
+     * normal and offset. The centre must lie inside all planes.
+     */
+    TriangleTree(double[] vertices, int[] faces, double[] planes, double[] center) {
+        this.vertices = vertices;
+        this.faces = faces;
+        this.planes = planes;
+        this.center = center;
+        int numberOfFaces = faces.length / 3;
+
+        order = new int[numberOfFaces];
+        double[] centroids = new double[3 * numberOfFaces];
+        for (int face = 0; face < numberOfFaces; ++face) {
+            order[face] = face;
+            for (int k = 0; k < 3; ++k) {
+                for (int corner = 0; corner < 3; ++corner) {
+                    centroids[3 * face + k] += vertices[3 * faces[3 * face + corner] + k] / 3;
+                }
+            }
+        }
+
+        int capacity = Math.max(1, 2 * numberOfFaces / MAX_LEAF_SIZE + 1);
+        bounds = new double[NODE_BOUNDS * capacity];
+        nodeIndex = new int[capacity];
+        nodeSize = new int[capacity];
+        build(centroids, 0, numberOfFaces, 1);
+    }
+
+    private int build(double[] centroids, int from, int to, int level) {
+        int node = numberOfNodes++;
+        if (node == nodeIndex.length) {
+            bounds = Arrays.copyOf(bounds, 2 * NODE_BOUNDS * node);
+            nodeIndex = Arrays.copyOf(nodeIndex, 2 * node);
+            nodeSize = Arrays.copyOf(nodeSize, 2 * node);
+        }
+        depth = Math.max(depth, level);
+
+        double[] box = new double[NODE_BOUNDS];
+        Arrays.fill(box, 0, 3, Double.POSITIVE_INFINITY);
+        Arrays.fill(box, 3, 6, Double.NEGATIVE_INFINITY);
+        Arrays.fill(box, 6, 9, Double.POSITIVE_INFINITY);
+        Arrays.fill(box, 9, 12, Double.NEGATIVE_INFINITY);
+        box[12] = Double.POSITIVE_INFINITY;
+        for (int i = from; i < to; ++i) {
+            int face = order[i];
+            for (int corner = 0; corner < 3; ++corner) {
+                int vertex = faces[3 * face + corner];
+                for (int k = 0; k < 3; ++k) {
+                    box[k] = Math.min(box[k], vertices[3 * vertex + k]);
+                    box[k + 3] = Math.max(box[k + 3], vertices[3 * vertex + k]);
+                }
+            }
+            double centerDistance = planes[4 * face + 3];
+            for (int k = 0; k < 3; ++k) {
+                box[k + 6] = Math.min(box[k + 6], planes[4 * face + k]);
+                box[k + 9] = Math.max(box[k + 9], planes[4 * face + k]);
+                centerDistance -= planes[4 * face + k] * center[k];
+            }
+            box[12] = Math.min(box[12], centerDistance);
+        }
+        System.arraycopy(box, 0, bounds, NODE_BOUNDS * node, NODE_BOUNDS);
+
+        if (to - from <= MAX_LEAF_SIZE) {
+            nodeIndex[node] = from;
+            nodeSize[node] = to - from;
+            return node;
+        }
+
+        int axis = 0;
+        for (int k = 1; k < 3; ++k) {
+            if (box[k + 3] - box[k] > box[axis + 3] - box[axis]) {
+                axis = k;
+            }
+        }
+        int middle = (from + to) / 2;
+        select(centroids, axis, from, to - 1, middle);
+
+        build(centroids, from, middle, level + 1);
+        int secondChild = build(centroids, middle, to, level + 1);
+        nodeIndex[node] = secondChild;
+        nodeSize[node] = 0;
+        return node;
+    }
+
+    /**
+     * Reorders the faces in [left, right] so that the face with the k-th smallest centroid coordinate
+     * along the axis is at position k, with smaller ones before and larger ones after it.
+     */
+    private void select(double[] centroids, int axis, int left, int right, int k) {
+        while (left < right) {
+            double pivot = centroids[3 * order[(left + right) >>> 1] + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (centroids[3 * order[i] + axis] < pivot) {
+                    ++i;
+                }
+                while (centroids[3 * order[j] + axis] > pivot) {
+                    --j;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    ++i;
+                    --j;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the smaller of the given bound and the distance between the point and the closest face.
+     * <p> For points inside the hull the distance to a face is measured to its plane, which gives the same
+     * minimum as the distance to the faces themselves.
+     */
+    double nearestDistance(double[] points, int point, double bound, boolean inside) {
+        double x = points[3 * point], y = points[3 * point + 1], z = points[3 * point + 2];
+        double best = bound;
+        // Nodes are kept on the stack together with their lower bound, which is checked again when the
+        // node is visited since the best distance might have decreased in the meantime.
+        int[] stack = new int[depth + 1];
+        double[] stackBounds = new double[depth + 1];
+        int stackSize = 0;
+        stack[stackSize] = 0;
+        stackBounds[stackSize++] = lowerBound(0, x, y, z, best, inside);
+        while (stackSize > 0) {
+            --stackSize;
+            int node = stack[stackSize];
+            if (stackBounds[stackSize] >= best) {
+                continue;
+            }
+            if (nodeSize[node] > 0) {
+                for (int i = nodeIndex[node]; i < nodeIndex[node] + nodeSize[node]; ++i) {
+                    best = Math.min(best, faceDistance(order[i], points, point, inside));
+                }
+                continue;
+            }
+            // Visit the closer child first, so the bound shrinks early.
+            int first = node + 1;
+            int second = nodeIndex[node];
+            double firstBound = lowerBound(first, x, y, z, best, inside);
+            double secondBound = lowerBound(second, x, y, z, best, inside);
+            if (firstBound > secondBound) {
+                int swap = first;
+                first = second;
+                second = swap;
+                double swapBound = firstBound;
+                firstBound = secondBound;
+                secondBound = swapBound;
+            }
+            if (secondBound < best) {
+                stack[stackSize] = second;
+                stackBounds[stackSize++] = secondBound;
+            }
+            if (firstBound < best) {
+                stack[stackSize] = first;
+                stackBounds[stackSize++] = firstBound;
+            }
+        }
+        return best;
+    }
+
+    private double faceDistance(int face, double[] points, int point, boolean inside) {
+        if (inside) {
+            return planes[4 * face + 3] - planes[4 * face] * points[3 * point]
+                    - planes[4 * face + 1] * points[3 * point + 1] - planes[4 * face + 2] * points[3 * point + 2];
+        }
+        return Math.sqrt(triangleDistanceSquared(
+                vertices, faces[3 * face], faces[3 * face + 1], faces[3 * face + 2], points, point));
+    }
+
+    /**
+     * Lower bound for the distance of the point to any face of the node. For points inside the hull the
+     * bound from the face planes is used as well, which is only computed exactly as long as it is below
+     * the given limit.
+     */
+    private double lowerBound(int node, double x, double y, double z, double limit, boolean inside) {
+        int offset = NODE_BOUNDS * node;
+
+        double planeBound = 0;
+        if (inside) {
+            // No face plane of the node is closer than its closest plane to the centre minus the largest
+            // possible projection of the offset from the centre onto one of the normals.
+            double px = x - center[0], py = y - center[1], pz = z - center[2];
+            planeBound = bounds[offset + 12]
+                    - Math.max(bounds[offset + 6] * px, bounds[offset + 9] * px)
+                    - Math.max(bounds[offset + 7] * py, bounds[offset + 10] * py)
+                    - Math.max(bounds[offset + 8] * pz, bounds[offset + 11] * pz);
+            if (planeBound >= limit) {
+                return planeBound;
+            }
+        }
+
+        double dx = Math.max(0, Math.max(bounds[offset] - x, x - bounds[offset + 3]));
+        double dy = Math.max(0, Math.max(bounds[offset + 1] - y, y - bounds[offset + 4]));
+        double dz = Math.max(0, Math.max(bounds[offset + 2] - z, z - bounds[offset + 5]));
+        return Math.max(planeBound, Math.sqrt(dx * dx + dy * dy + dz * dz));
+    }
+
+    /**
+     * Squared distance between point p and the triangle abc.
+     * <p> Compare Ericson, Real-Time Collision Detection, Section 5.1.5.
+     */
+    static double triangleDistanceSquared(double[] vertices, int a, int b, int c, double[] points, int p) {
+        double ax = vertices[3 * a], ay = vertices[3 * a + 1], az = vertices[3 * a + 2];
+        double abx = vertices[3 * b] - ax, aby = vertices[3 * b + 1] - ay, abz = vertices[3 * b + 2] - az;
+        double acx = vertices[3 * c] - ax, acy = vertices[3 * c + 1] - ay, acz = vertices[3 * c + 2] - az;
+        double apx = points[3 * p] - ax, apy = points[3 * p + 1] - ay, apz = points[3 * p + 2] - az;
+
+        double d1 = abx * apx + aby * apy + abz * apz;
+        double d2 = acx * apx + acy * apy + acz * apz;
+        if (d1 <= 0 && d2 <= 0) {
+            return squaredLength(apx, apy, apz);
+        }
+
+        double bpx = apx - abx, bpy = apy - aby, bpz = apz - abz;
+        double d3 = abx * bpx + aby * bpy + abz * bpz;
+        double d4 = acx * bpx + acy * bpy + acz * bpz;
+        if (d3 >= 0 && d4 <= d3) {
+            return squaredLength(bpx, bpy, bpz);
+        }
+
+        double vc = d1 * d4 - d3 * d2;
+        if (vc <= 0 && d1 >= 0 && d3 <= 0) {
+            double v = d1 / (d1 - d3);
+            return squaredLength(apx - v * abx, apy - v * aby, apz - v * abz);
+        }
+
+        double cpx = apx - acx, cpy = apy - acy, cpz = apz - acz;
+        double d5 = abx * cpx + aby * cpy + abz * cpz;
+        double d6 = acx * cpx + acy * cpy + acz * cpz;
+        if (d6 >= 0 && d5 <= d6) {
+            return squaredLength(cpx, cpy, cpz);
+        }
+
+        double vb = d5 * d2 - d1 * d6;
+        if (vb <= 0 && d2 >= 0 && d6 <= 0) {
+            double w = d2 / (d2 - d6);
+            return squaredLength(apx - w * acx, apy - w * acy, apz - w * acz);
+        }
+
+        double va = d3 * d6 - d5 * d4;
+        if (va <= 0 && (d4 - d3) >= 0 && (d5 - d6) >= 0) {
+            double w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            return squaredLength(bpx - w * (acx - abx), bpy - w * (acy - aby), bpz - w * (acz - abz));
+        }
+
+        double denominator = 1 / (va + vb + vc);
+        double v = vb * denominator;
+        double w = vc * denominator;
+        return squaredLength(apx - v * abx - w * acx, apy - v * aby - w * acy, apz - v * abz - w * acz);
+    }
+
+    private static double squaredLength(double x, double y, double z) {
+        return x * x + y * y + z * z;
+    }
+}
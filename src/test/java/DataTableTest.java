@@ -24,7 +24,12 @@
 
 import org.junit.Test;
 
+import java.io.BufferedReader;
+import java.io.StringReader;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class DataTableTest {
     @Test
@@ -57,4 +62,86 @@ public class DataTableTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void dictionaryEncodingTest() throws Exception {
+        int numberOfRows = 4 * DataColumn.MIN_REPETITIONS;
+        String[] rowLabels = new String[numberOfRows];
+        String[][] data = new String[numberOfRows][];
+        for (int i = 0; i < numberOfRows; ++i) {
+            rowLabels[i] = "Row" + i;
+            data[i] = new String[]{i % 2 == 0 ? "0.0" : "50.0", Integer.toString(i)};
+        }
+        DataTable<String> testTable = new DataTable<>(rowLabels, new String[]{"ColA", "ColB"}, data);
+
+        assertTrue(testTable.getColumn(0).isDictionaryEncoded());
+        assertFalse(testTable.getColumn(1).isDictionaryEncoded());
+        assertEquals("50.0", testTable.getDataItem("Row3", "ColA"));
+        assertEquals("5", testTable.getDataItem("Row5", "ColB"));
+    }
+
+    @Test
+    public void dictionaryEncodingGrowthTest() throws Exception {
+        int initialRows = DataColumn.MIN_REPETITIONS;
+        String[] rowLabels = new String[initialRows];
+        String[][] data = new String[initialRows][];
+        for (int i = 0; i < initialRows; ++i) {
+            rowLabels[i] = "Row" + i;
+            data[i] = new String[]{"0"};
+        }
+        DataTable<String> testTable = new DataTable<>(rowLabels, new String[]{"ColA"}, data);
+        assertTrue(testTable.getColumn(0).isDictionaryEncoded());
+
+        // More distinct values than fit into byte codes, each still repeated often enough.
+        int repeatedRows = 2 * DataColumn.MIN_REPETITIONS * 300;
+        for (int i = initialRows; i < repeatedRows; ++i) {
+            testTable.addRow("Row" + i, new String[]{Integer.toString(i / (2 * DataColumn.MIN_REPETITIONS))});
+        }
+        assertTrue(testTable.getColumn(0).isDictionaryEncoded());
+
+        int numberOfRows = repeatedRows + 1000;
+        for (int i = repeatedRows; i < numberOfRows; ++i) {
+            testTable.addRow("Row" + i, new String[]{"Unique" + i});
+        }
+
+        assertFalse(testTable.getColumn(0).isDictionaryEncoded());
+        assertEquals(numberOfRows, testTable.numberOfRows());
+        assertEquals("0", testTable.getDataItem(1, 0));
+        assertEquals("299", testTable.getDataItem(repeatedRows - 1, 0));
+        assertEquals("Unique" + (numberOfRows - 1), testTable.getDataItem(numberOfRows - 1, 0));
+    }
+
+    @Test
+    public void emptyTableGrowthTest() throws Exception {
+        DataTable<String> testTable = new DataTable<>(new String[0], new String[]{"ColA"}, new String[0][]);
+
+        for (int i = 0; i < 1000; ++i) {
+            testTable.addRow("Row" + i, new String[]{Integer.toString(i)});
+        }
+
+        assertFalse(testTable.getColumn(0).isDictionaryEncoded());
+        assertEquals("999", testTable.getDataItem("Row999", "ColA"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addColumnLengthTest() throws Exception {
+        DataTable<String> testTable = new DataTable<>(
+                new String[]{"RowA"},
+                new String[]{"ColA"},
+                new String[][]{{"AA"}}
+        );
+
+        testTable.addColumn("ColB", new String[]{"AB", "BB"});
+    }
+
+    @Test
+    public void parseEmptyDataTest() throws Exception {
+        DataTable<String> testTable = DataTable.parseFromTi3Data(
+                new String[]{"ColA"},
+                new BufferedReader(new StringReader("END_DATA\n"))
+        );
+
+        assertEquals(0, testTable.numberOfRows());
+        assertEquals(1, testTable.numberOfColumns());
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2016 Michael Mauderer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GamutBoundaryTest {
+
+    private static final double[] UNIT_CUBE = {
+            0, 0, 0, 1, 0, 0, 0, 1, 0, 1, 1, 0,
+            0, 0, 1, 1, 0, 1, 0, 1, 1, 1, 1, 1,
+            0.5, 0.5, 0.5, 0.2, 0.7, 0.1
+    };
+
+    @Test
+    public void unitCubeTest() throws Exception {
+        GamutBoundary testGamut = GamutBoundary.fromPoints(UNIT_CUBE);
+
+        assertEquals(12, testGamut.numberOfFaces());
+        assertTrue(testGamut.contains(0.5, 0.5, 0.5));
+        assertTrue(testGamut.contains(1, 1, 1));
+        assertFalse(testGamut.contains(1.1, 0.5, 0.5));
+        assertEquals(-0.5, testGamut.distance(0.5, 0.5, 0.5), 1e-9);
+        assertEquals(1, testGamut.distance(2, 0.5, 0.5), 1e-9);
+        assertEquals(Math.sqrt(3), testGamut.distance(2, 2, 2), 1e-9);
+    }
+
+    @Test
+    public void batchQueryTest() throws Exception {
+        GamutBoundary testGamut = GamutBoundary.fromPoints(UNIT_CUBE);
+
+        double[] testPoints = {0.5, 0.5, 0.5, 2, 0.5, 0.5, 0.5, -1, 0.5, 0.9, 0.9, 0.9, 2, 2, 2};
+
+        assertArrayEquals(
+                new boolean[]{true, false, false, true, false},
+                testGamut.contains(testPoints)
+        );
+        assertArrayEquals(
+                new double[]{-0.5, 1, 1, -0.1, Math.sqrt(3)},
+                testGamut.distance(testPoints),
+                1e-9
+        );
+    }
+
+    @Test
+    public void parallelBatchQueryTest() throws Exception {
+        // A long thin box, so that the closest face is often not the one in the direction of the point.
+        double[] halfSize = {50, 2, 1};
+        Random random = new Random(42);
+        double[] boxPoints = new double[3 * 1000];
+        for (int i = 0; i < boxPoints.length; ++i) {
+            int k = i % 3;
+            boxPoints[i] = i < 24 ? ((i / 3 >> k & 1) == 0 ? -halfSize[k] : halfSize[k]) : (2 * random.nextDouble() - 1) * halfSize[k];
+        }
+        GamutBoundary testGamut = GamutBoundary.fromPoints(boxPoints);
+
+        int numberOfPoints = 3 * GamutBoundary.POINTS_PER_TASK + 17;
+        double[] testPoints = new double[3 * numberOfPoints];
+        for (int i = 0; i < testPoints.length; ++i) {
+            testPoints[i] = (4 * random.nextDouble() - 2) * halfSize[i % 3];
+        }
+
+        boolean[] contained;
+        double[] distances;
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            contained = testGamut.contains(testPoints, executor);
+            distances = testGamut.distance(testPoints, executor);
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int point = 0; point < numberOfPoints; ++point) {
+            double outside = 0;
+            double inside = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < 3; ++k) {
+                double offset = Math.abs(testPoints[3 * point + k]) - halfSize[k];
+                outside += Math.max(offset, 0) * Math.max(offset, 0);
+                inside = Math.min(inside, -offset);
+            }
+            double expected = outside > 0 ? Math.sqrt(outside) : -inside;
+            assertEquals(expected <= 0, contained[point]);
+            assertEquals(expected, distances[point], 1e-9);
+        }
+    }
+
+    @Test
+    public void noisyLatticeTest() throws Exception {
+        // An RGB lattice in XYZ with noise just above the tolerance, so that many points are almost
+        // coplanar with the faces of the hull.
+        double[][] rgbToXyz = {{41.24, 35.76, 18.05}, {21.26, 71.52, 7.22}, {1.93, 11.92, 95.05}};
+        Random random = new Random(0);
+        double[] latticePoints = new double[3 * 9 * 9 * 9];
+        double[] center = new double[3];
+        for (int point = 0; point < 9 * 9 * 9; ++point) {
+            double[] rgb = {point / 81 / 8.0, point / 9 % 9 / 8.0, point % 9 / 8.0};
+            for (int k = 0; k < 3; ++k) {
+                double value = rgbToXyz[k][0] * rgb[0] + rgbToXyz[k][1] * rgb[1] + rgbToXyz[k][2] * rgb[2];
+                latticePoints[3 * point + k] = value + 1e-9 * random.nextGaussian();
+                center[k] += value / (9 * 9 * 9);
+            }
+        }
+        GamutBoundary testGamut = GamutBoundary.fromPoints(latticePoints);
+
+        for (boolean contained : testGamut.contains(latticePoints)) {
+            assertTrue(contained);
+        }
+        for (double distance : testGamut.distance(latticePoints)) {
+            assertTrue(distance <= 1e-6);
+        }
+        // Six sides with 2 * 8 * 8 triangles each if the noise were not there.
+        assertTrue(testGamut.numberOfFaces() <= 2 * 6 * 2 * 8 * 8);
+        assertTrue(testGamut.distance(center[0], center[1], center[2]) < -10);
+    }
+
+    @Test
+    public void ti3DataTest() throws Exception {
+        Ti3Data testFile = Ti3Data.parseFrom(new File(getClass().getResource("/testData.ti3").getFile()));
+        GamutBoundary testGamut = GamutBoundary.fromTi3Data(testFile, GamutBoundary.XYZ_FIELDS);
+
+        for (String row : testFile.getRowLabels()) {
+            assertTrue(testGamut.contains(
+                    Double.parseDouble(testFile.get(row, "XYZ_X")),
+                    Double.parseDouble(testFile.get(row, "XYZ_Y")),
+                    Double.parseDouble(testFile.get(row, "XYZ_Z"))
+            ));
+        }
+        assertFalse(testGamut.contains(0, 200, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonNumericValueTest() throws Exception {
+        DataTable<String> table = new DataTable<>(
+                new String[]{"A01", "A02", "A03", "A04"},
+                GamutBoundary.XYZ_FIELDS,
+                new String[][]{{"0", "0", "0"}, {"1", "0", "0"}, {"0", "1", "0"}, {"0", "0", "n/a"}}
+        );
+        Ti3Data testFile = new Ti3Data("CTI3", table, new Ti3Data.Property[0]);
+
+        GamutBoundary.fromTi3Data(testFile, GamutBoundary.XYZ_FIELDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void coplanarPointsTest() throws Exception {
+        GamutBoundary.fromPoints(new double[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 1, 1, 0});
+    }
+
+}
@@ -23,6 +23,9 @@
  */
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -105,5 +108,16 @@ public class Ti3DataTest {
 
     }
 
+    @org.junit.Test(expected = IOException.class)
+    public void testInvalidCompressedFile() throws Exception {
+        File invalidFile = File.createTempFile("invalidData", ".ti3" + Ti3Data.GZIP_SUFFIX);
+        invalidFile.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(invalidFile)) {
+            out.write("CTI3\n".getBytes("utf-8"));
+        }
 
-}
\ No newline at end of file
+        Ti3Data.parseFrom(invalidFile);
+    }
+
+
+}
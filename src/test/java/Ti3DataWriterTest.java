@@ -29,6 +29,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStreamReader;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class Ti3DataWriterTest {
@@ -53,4 +54,52 @@ public class Ti3DataWriterTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void writeCompressedFileTest() throws Exception {
+
+        File ti3TestFile = new File(getClass().getResource("/testData.ti3").getFile());
+
+        Ti3Data ti3Reference = Ti3Data.parseFrom(ti3TestFile);
+
+        File compressedFile = File.createTempFile("testData", ".ti3" + Ti3Data.GZIP_SUFFIX);
+        compressedFile.deleteOnExit();
+        ti3Reference.writeFile(compressedFile);
+
+        Ti3Data testFile = Ti3Data.parseFrom(compressedFile);
+        assertEquals(ti3Reference, testFile);
+
+        ti3Reference.writeFile(compressedFile, 3);
+
+        testFile = Ti3Data.parseFrom(compressedFile);
+        assertEquals(ti3Reference, testFile);
+
+
+    }
+
+    @Test
+    public void writeParallelTest() throws Exception {
+
+        File ti3TestFile = new File(getClass().getResource("/testData.ti3").getFile());
+
+        Ti3Data ti3Reference = Ti3Data.parseFrom(ti3TestFile);
+
+        Ti3FileWriter testWriter = new Ti3FileWriter(ti3Reference);
+
+        ByteArrayOutputStream serialOutputStream = new ByteArrayOutputStream();
+        testWriter.write(serialOutputStream);
+
+        ByteArrayOutputStream parallelOutputStream = new ByteArrayOutputStream();
+        testWriter.writeParallel(parallelOutputStream, 3, 4);
+
+        assertArrayEquals(serialOutputStream.toByteArray(), parallelOutputStream.toByteArray());
+
+        // A single thread with single row blocks exceeds the blocks in flight limit and has to wait.
+        ByteArrayOutputStream boundedOutputStream = new ByteArrayOutputStream();
+        testWriter.writeParallel(boundedOutputStream, 1, 1);
+
+        assertArrayEquals(serialOutputStream.toByteArray(), boundedOutputStream.toByteArray());
+
+
+    }
+
+}